@@ -1,24 +1,47 @@
 package com.example.xmladapters;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.database.AbstractCursor;
+import android.database.ContentObserver;
 import android.database.Cursor;
+import android.database.DataSetObserver;
 import android.net.Uri;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+import android.support.v4.widget.CursorAdapter;
 import android.support.v4.widget.SimpleCursorAdapter;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.util.Xml;
+import android.view.LayoutInflater;
 import android.view.View;
+import android.view.ViewGroup;
 import android.widget.BaseAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * <p>This class can be used to load {@link android.widget.Adapter adapters} defined in
@@ -43,6 +66,8 @@ import java.util.HashMap;
  * <ul>
  *  <li><a href="#xml-cursor-adapter-select-tag"><code>&lt;select /&gt;</code></a></li>
  *  <li><a href="#xml-cursor-adapter-bind-tag"><code>&lt;bind /&gt;</code></a></li>
+ *  <li><a href="#xml-cursor-adapter-source-tag"><code>&lt;source /&gt;</code></a></li>
+ *  <li><a href="#xml-cursor-adapter-layout-tag"><code>&lt;layout /&gt;</code></a></li>
  * </ul>
  * 
  * <a name="xml-cursor-adapter-tag"></a>
@@ -52,6 +77,10 @@ import java.util.HashMap;
  * <ul>
  *  <li><code>android:layout</code>: Reference to the XML layout to be inflated for
  *  each item of the adapter. This attribute is mandatory.</li>
+ *  <li><code>android:layoutColumn</code>: Name of the column used to select one of the
+ *  layouts declared with <a href="#xml-cursor-adapter-layout-tag"><code>&lt;layout /&gt;</code></a>
+ *  tags. This attribute is mandatory if at least one <code>&lt;layout /&gt;</code> tag is
+ *  present.</li>
  *  <li><code>android:selection</code>: Selection expression, used when the
  *  <code>android:uri</code> attribute is defined or when the adapter is loaded with
  *  {@link Adapters#loadCursorAdapter(android.content.Context, int, String, Object[])}.
@@ -67,8 +96,10 @@ import java.util.HashMap;
  *  optional.</li>
  * </ul>
  * <p>In addition, you can specify one or more instances of
- * <a href="#xml-cursor-adapter-select-tag"><code>&lt;select /&gt;</code></a> and
- * <a href="#xml-cursor-adapter-bind-tag"><code>&lt;bind /&gt;</code></a> tags as children
+ * <a href="#xml-cursor-adapter-select-tag"><code>&lt;select /&gt;</code></a>,
+ * <a href="#xml-cursor-adapter-bind-tag"><code>&lt;bind /&gt;</code></a>,
+ * <a href="#xml-cursor-adapter-source-tag"><code>&lt;source /&gt;</code></a> and
+ * <a href="#xml-cursor-adapter-layout-tag"><code>&lt;layout /&gt;</code></a> tags as children
  * of <code>&lt;cursor-adapter /&gt;</code>.</p>
  * 
  * <a name="xml-cursor-adapter-select-tag"></a>
@@ -87,6 +118,47 @@ import java.util.HashMap;
  * <p><strong>Note:</strong> The column named <code>_id</code> is always implicitly
  * selected.</p>
  * 
+ * <a name="xml-cursor-adapter-source-tag"></a>
+ * <h3>&lt;source /&gt;</h3>
+ * <p>The <code>&lt;source /&gt;</code> tag declares an additional content provider to
+ * query. When at least one <code>&lt;source /&gt;</code> is present, the URI declared on
+ * <code>&lt;cursor-adapter /&gt;</code> (if any) and every source are queried concurrently
+ * on a pool of worker threads. The rows of each source are added to the adapter, in
+ * declaration order, as soon as its query completes: the list becomes visible with the
+ * fastest source and is complete once the slowest one has returned. All sources share
+ * the same columns, layout and bindings. A source whose query fails is logged and
+ * left out of the adapter.</p>
+ * <p>The <code>&lt;source /&gt;</code> tag supports the following attributes:</p>
+ * <ul>
+ *  <li><code>android:uri</code>: URI of the content provider to query. This attribute
+ *  is mandatory.</li>
+ *  <li><code>android:selection</code>: Selection expression for this source. This
+ *  attribute is optional.</li>
+ *  <li><code>android:sortOrder</code>: Sort expression for this source. Rows are only
+ *  sorted within their own source. This attribute is optional.</li>
+ * </ul>
+ * 
+ * <a name="xml-cursor-adapter-layout-tag"></a>
+ * <h3>&lt;layout /&gt;</h3>
+ * <p>The <code>&lt;layout /&gt;</code> tag declares an alternative layout for the rows
+ * whose <code>android:layoutColumn</code> column has a given value. Each layout is a
+ * distinct view type of the adapter: its views are only recycled for rows of the same
+ * type. Rows matching no <code>&lt;layout /&gt;</code> use the layout declared on
+ * <code>&lt;cursor-adapter /&gt;</code>.</p>
+ * <p>A <code>&lt;layout /&gt;</code> can contain
+ * <a href="#xml-cursor-adapter-bind-tag"><code>&lt;bind /&gt;</code></a> tags. They are
+ * only applied to the rows using this layout, in addition to the
+ * <code>&lt;bind /&gt;</code> tags declared directly in <code>&lt;cursor-adapter /&gt;</code>,
+ * which are applied to every row.</p>
+ * <p>The <code>&lt;layout /&gt;</code> tag supports the following attributes:</p>
+ * <ul>
+ *  <li><code>android:layout</code>: Reference to the XML layout to be inflated for the
+ *  matching rows. This attribute is mandatory.</li>
+ *  <li><code>android:whenValue</code>: The value of the <code>android:layoutColumn</code>
+ *  column selecting this layout. Two layouts cannot use the same value. This attribute
+ *  is mandatory.</li>
+ * </ul>
+ * 
  * <a name="xml-cursor-adapter-bind-tag"></a>
  * <h3>&lt;bind /&gt;</h3>
  * <p>The <code>&lt;bind /&gt;</code> tag is used to bind a column from the cursor to
@@ -172,8 +244,8 @@ import java.util.HashMap;
  * <ul>
  *  <li><code>android:withExpression</code>: The transformation expression. The expression is
  *  a string containing column names surrounded with curly braces { and }. During the
- *  transformation each column name is replaced by its value. All columns must have been
- *  selected in the query. An example of expression is <code>"First name: {first_name},
+ *  transformation each column name is replaced by its value. These columns are added
+ *  to the query's projection. An example of expression is <code>"First name: {first_name},
  *  last name: {last_name}"</code>. This attribute is mandatory
  *  if <code>android:withClass</code> is not specified and ignored if <code>android:withClass</code>
  *  is specified</li>
@@ -222,21 +294,31 @@ import java.util.HashMap;
  * @see android.content.ContentProvider
  * 
  * attr ref android.R.styleable#CursorAdapter_layout
+ * attr ref android.R.styleable#CursorAdapter_layoutColumn
  * attr ref android.R.styleable#CursorAdapter_selection
  * attr ref android.R.styleable#CursorAdapter_sortOrder
  * attr ref android.R.styleable#CursorAdapter_uri
  * attr ref android.R.styleable#CursorAdapter_BindItem_as
  * attr ref android.R.styleable#CursorAdapter_BindItem_from
  * attr ref android.R.styleable#CursorAdapter_BindItem_to
+ * attr ref android.R.styleable#CursorAdapter_LayoutItem_layout
+ * attr ref android.R.styleable#CursorAdapter_LayoutItem_whenValue
  * attr ref android.R.styleable#CursorAdapter_MapItem_fromValue
  * attr ref android.R.styleable#CursorAdapter_MapItem_toValue
  * attr ref android.R.styleable#CursorAdapter_SelectItem_column
+ * attr ref android.R.styleable#CursorAdapter_SourceItem_selection
+ * attr ref android.R.styleable#CursorAdapter_SourceItem_sortOrder
+ * attr ref android.R.styleable#CursorAdapter_SourceItem_uri
  * attr ref android.R.styleable#CursorAdapter_TransformItem_withClass
  * attr ref android.R.styleable#CursorAdapter_TransformItem_withExpression
  */
 public class Adapters {
+    private static final String LOG_TAG = "Adapters";
     private static final String ADAPTER_CURSOR = "cursor-adapter";
     
+    private static CacheBudget sCacheBudget;
+    private static BitmapCache<String> sImageCache;
+    
     /**
      * <p>Interface used to bind a {@link android.database.Cursor} column to a View. This
      * interface can be used to provide bindings for data types not supported by the
@@ -288,12 +370,408 @@ public class Adapters {
         public int transformToResource(Cursor cursor, int columnIndex) {
             return cursor.getInt(columnIndex);
         }
+        
+        /**
+         * Adds to the projection the columns read by this transformation besides the
+         * column of its binding.
+         */
+        void addColumns(ArrayList<String> columns) {
+        }
+        
+        /**
+         * Resolves the columns read by this transformation in a new cursor, which may
+         * be null.
+         */
+        void compile(Cursor cursor) {
+        }
+    }
+    
+    /**
+     * <p>A cache registered with the {@link Adapters.CacheBudget}. Entries are evicted in
+     * least recently used order whenever the occupancy of the cache exceeds its budget.</p>
+     * 
+     * <p>Budgets and occupancies are expressed in bytes. Subclasses must implement
+     * {@link #sizeOf(Object, Object)} to return the size of an entry in bytes.</p>
+     * 
+     * @see Adapters.BitmapCache
+     * @see Adapters.CacheBudget
+     */
+    public static abstract class BudgetedCache<K, V> {
+        private final String mName;
+        private final int mRebuildCost;
+        private final LruCache<K, V> mCache;
+        private volatile int mBudget;
+        
+        public BudgetedCache(String name, int rebuildCost, int budget) {
+            mName = name;
+            mRebuildCost = rebuildCost;
+            mBudget = budget;
+            // The budget is enforced on put(), the LruCache limit only guards overflows
+            mCache = new LruCache<K, V>(Integer.MAX_VALUE) {
+                @Override
+                protected int sizeOf(K key, V value) {
+                    return BudgetedCache.this.sizeOf(key, value);
+                }
+            };
+        }
+        
+        /**
+         * Returns the size of the specified entry, in bytes.
+         */
+        protected abstract int sizeOf(K key, V value);
+        
+        public final V get(K key) {
+            return mCache.get(key);
+        }
+        
+        public final void put(K key, V value) {
+            mCache.put(key, value);
+            final int budget = mBudget;
+            if (mCache.size() > budget) {
+                mCache.trimToSize(budget);
+            }
+        }
+        
+        public final V remove(K key) {
+            return mCache.remove(key);
+        }
+        
+        public final void evictAll() {
+            mCache.evictAll();
+        }
+        
+        public final String getName() {
+            return mName;
+        }
+        
+        /**
+         * Returns the relative cost of rebuilding an evicted entry. Caches with the
+         * lowest cost are trimmed first.
+         */
+        public final int getRebuildCost() {
+            return mRebuildCost;
+        }
+        
+        /**
+         * Returns the maximum occupancy of this cache, in bytes.
+         */
+        public final int getBudget() {
+            return mBudget;
+        }
+        
+        /**
+         * Sets the maximum occupancy of this cache, in bytes, and evicts entries until
+         * the occupancy fits in the new budget.
+         */
+        public final void setBudget(int budget) {
+            mBudget = budget;
+            mCache.trimToSize(budget);
+        }
+        
+        /**
+         * Returns the current occupancy of this cache, in bytes.
+         */
+        public final int size() {
+            return mCache.size();
+        }
+        
+        final void trimToSize(int size) {
+            mCache.trimToSize(size);
+        }
+        
+        @Override
+        public String toString() {
+            return mName + "[size=" + mCache.size() + ",budget=" + mBudget + ",hits=" +
+                    mCache.hitCount() + ",misses=" + mCache.missCount() + ",evictions=" +
+                    mCache.evictionCount() + "]";
+        }
+    }
+    
+    /**
+     * A {@link Adapters.BudgetedCache} of bitmaps, measured by the size of their pixels.
+     */
+    public static class BitmapCache<K> extends BudgetedCache<K, Bitmap> {
+        public BitmapCache(String name, int rebuildCost, int budget) {
+            super(name, rebuildCost, budget);
+        }
+        
+        @Override
+        protected int sizeOf(K key, Bitmap value) {
+            return value.getRowBytes() * value.getHeight();
+        }
+    }
+    
+    /**
+     * <p>Coordinates the memory used by the caches of the adapter subsystem. Every
+     * {@link Adapters.BudgetedCache} registered here is trimmed when the system reports
+     * memory pressure, starting with the caches that are the cheapest to rebuild.</p>
+     * 
+     * <p>The budget is not registered automatically. Applications must forward the
+     * {@link android.content.ComponentCallbacks2#onTrimMemory(int)} and
+     * {@link android.content.ComponentCallbacks#onLowMemory()} callbacks of their
+     * application or activities to the instance returned by
+     * {@link Adapters#getCacheBudget()}.</p>
+     * 
+     * <p>The budget of a cache can be configured with {@link #setBudget(String, int)},
+     * before or after the cache is registered. {@link #toString()} reports the current
+     * occupancy of every cache and can be used to tune the budgets.</p>
+     * 
+     * <p>Images bound with <code>android:as="image-uri"</code> are kept in the
+     * {@link #CACHE_IMAGE_URI} cache, registered the first time such a binding is
+     * loaded.</p>
+     */
+    public static class CacheBudget implements ComponentCallbacks {
+        /**
+         * Rebuild cost of entries loaded from the application's resources.
+         */
+        public static final int REBUILD_COST_RESOURCE = 10;
+        /**
+         * Rebuild cost of entries decoded from a file or a content URI.
+         */
+        public static final int REBUILD_COST_DECODE = 20;
+        /**
+         * Rebuild cost of entries requiring a content provider query.
+         */
+        public static final int REBUILD_COST_QUERY = 30;
+        
+        /**
+         * Name of the cache of the images bound with <code>android:as="image-uri"</code>.
+         */
+        public static final String CACHE_IMAGE_URI = "image-uri";
+        
+        private final ArrayList<BudgetedCache<?, ?>> mCaches = new ArrayList<BudgetedCache<?, ?>>();
+        private final HashMap<String, Integer> mBudgets = new HashMap<String, Integer>();
+        
+        CacheBudget() {
+        }
+        
+        /**
+         * Registers the specified cache. If a budget was configured for the name of
+         * the cache it replaces the budget the cache was created with. Returns the
+         * specified cache.
+         */
+        public synchronized <C extends BudgetedCache<?, ?>> C register(C cache) {
+            final Integer budget = mBudgets.get(cache.getName());
+            if (budget != null) cache.setBudget(budget);
+            
+            int index = 0;
+            final int count = mCaches.size();
+            while (index < count && mCaches.get(index).getRebuildCost() <= cache.getRebuildCost()) {
+                index++;
+            }
+            mCaches.add(index, cache);
+            
+            return cache;
+        }
+        
+        public synchronized void unregister(BudgetedCache<?, ?> cache) {
+            mCaches.remove(cache);
+        }
+        
+        public synchronized void setBudget(String name, int budget) {
+            mBudgets.put(name, budget);
+            for (BudgetedCache<?, ?> cache : mCaches) {
+                if (cache.getName().equals(name)) cache.setBudget(budget);
+            }
+        }
+        
+        /**
+         * Returns the current occupancy, in bytes, of the cache registered with the
+         * specified name, or -1 if no such cache exists.
+         */
+        public synchronized int getSize(String name) {
+            for (BudgetedCache<?, ?> cache : mCaches) {
+                if (cache.getName().equals(name)) return cache.size();
+            }
+            return -1;
+        }
+        
+        public synchronized int getTotalSize() {
+            int total = 0;
+            for (BudgetedCache<?, ?> cache : mCaches) {
+                total += cache.size();
+            }
+            return total;
+        }
+        
+        /**
+         * Releases a fraction of the total occupancy that depends on the trim level.
+         * Caches are trimmed in increasing order of rebuild cost: a cache is only
+         * trimmed once all cheaper caches have been emptied.
+         */
+        public synchronized void onTrimMemory(int level) {
+            final int percent;
+            if (level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+                percent = 100;
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE ||
+                    level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+                percent = 75;
+            } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND ||
+                    level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+                percent = 50;
+            } else {
+                percent = 25;
+            }
+            release(percent);
+        }
+        
+        @Override
+        public void onLowMemory() {
+            release(100);
+        }
+        
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+        
+        private synchronized void release(int percent) {
+            int remaining = (int) ((long) getTotalSize() * percent / 100);
+            
+            for (BudgetedCache<?, ?> cache : mCaches) {
+                if (remaining <= 0) break;
+                
+                final int size = cache.size();
+                if (size <= remaining) {
+                    cache.evictAll();
+                    remaining -= size;
+                } else {
+                    cache.trimToSize(size - remaining);
+                    remaining = 0;
+                }
+            }
+        }
+        
+        @Override
+        public synchronized String toString() {
+            return "CacheBudget" + mCaches;
+        }
+    }
+    
+    /**
+     * Returns the budget shared by all the caches of the adapter subsystem.
+     */
+    public static synchronized CacheBudget getCacheBudget() {
+        if (sCacheBudget == null) {
+            sCacheBudget = new CacheBudget();
+        }
+        return sCacheBudget;
+    }
+    
+    private static synchronized BitmapCache<String> getImageCache() {
+        if (sImageCache == null) {
+            // Unless configured otherwise, images may use 1/16th of the heap
+            final int budget = (int) (Runtime.getRuntime().maxMemory() / 16);
+            sImageCache = getCacheBudget().register(new BitmapCache<String>(
+                    CacheBudget.CACHE_IMAGE_URI, CacheBudget.REBUILD_COST_DECODE, budget));
+        }
+        return sImageCache;
+    }
+    
+    /**
+     * <p>Loads the {@link android.widget.Adapter} defined in the specified XML resource.
+     * If the adapter declares where to load its content from, for instance with the
+     * <code>android:uri</code> attribute of a cursor adapter, loading starts
+     * immediately.</p>
+     * 
+     * @param context The context to load the XML resource from.
+     * @param id The identifier of the XML resource declaring the adapter.
+     * @param parameters Optional parameters, currently unused.
+     * 
+     * @return A {@link android.widget.BaseAdapter}
+     * 
+     * @throws IllegalArgumentException If the XML resource does not contain
+     *         a valid adapter definition.
+     * 
+     * @see #loadCursorAdapter(android.content.Context, int, String, Object[])
+     */
+    public static BaseAdapter loadAdapter(Context context, int id, Object... parameters) {
+        final BaseAdapter adapter = loadAdapter(context, id, null, parameters);
+        if (adapter instanceof ManagedAdapter) {
+            ((ManagedAdapter) adapter).load();
+        }
+        return adapter;
+    }
+    
+    /**
+     * <p>Loads the {@link CursorAdapter} defined in the specified XML resource. The
+     * content of the adapter is queried from the specified URI, which replaces the
+     * <code>android:uri</code> attribute of the definition if it is not null.</p>
+     * 
+     * @param context The context to load the XML resource from.
+     * @param id The identifier of the XML resource declaring the adapter.
+     * @param uri The URI of the content provider.
+     * @param parameters Optional parameters, currently unused.
+     * 
+     * @return A {@link CursorAdapter}
+     * 
+     * @throws IllegalArgumentException If the XML resource does not contain
+     *         a valid &lt;cursor-adapter /&gt; definition.
+     */
+    public static CursorAdapter loadCursorAdapter(Context context, int id, String uri,
+            Object... parameters) {
+        
+        XmlCursorAdapter adapter = (XmlCursorAdapter) loadAdapter(context, id, ADAPTER_CURSOR,
+                parameters);
+        
+        if (uri != null) {
+            adapter.seturi(uri);
+        }
+        adapter.load();
+        
+        return adapter;
     }
     
-    private static BaseAdapter loadAdapter(Context context, int id, String assertName, Object... parameters) {
+    /**
+     * <p>Loads the {@link CursorAdapter} defined in the specified XML resource. The
+     * content of the adapter is the specified cursor. The <code>android:uri</code>
+     * attribute and the &lt;source /&gt; items of the definition are ignored.</p>
+     * 
+     * @param context The context to load the XML resource from.
+     * @param id The identifier of the XML resource declaring the adapter.
+     * @param cursor The cursor containing the data for the adapter.
+     * @param parameters Optional parameters, currently unused.
+     * 
+     * @return A {@link CursorAdapter}
+     * 
+     * @throws IllegalArgumentException If the XML resource does not contain
+     *         a valid &lt;cursor-adapter /&gt; definition.
+     */
+    public static CursorAdapter loadCursorAdapter(Context context, int id, Cursor cursor,
+            Object... parameters) {
+        
+        XmlCursorAdapter adapter = (XmlCursorAdapter) loadAdapter(context, id, ADAPTER_CURSOR,
+                parameters);
         
+        if (cursor != null) {
+            adapter.changeCursor(cursor);
+        }
+        
+        return adapter;
+    }
+    
+    private static BaseAdapter loadAdapter(Context context, int id, String assertName,
+            Object... parameters) {
         
-        return null;
+        XmlResourceParser parser = null;
+        try {
+            parser = context.getResources().getXml(id);
+            return createAdapterFromXml(context, parser, Xml.asAttributeSet(parser),
+                    id, parameters, assertName);
+        } catch (XmlPullParserException ex) {
+            Resources.NotFoundException rnf = new Resources.NotFoundException(
+                    "Can't load adapter resource ID " +
+                    context.getResources().getResourceEntryName(id));
+            rnf.initCause(ex);
+            throw rnf;
+        } catch (IOException ex) {
+            Resources.NotFoundException rnf = new Resources.NotFoundException(
+                    "Can't load adapter resource ID " +
+                    context.getResources().getResourceEntryName(id));
+            rnf.initCause(ex);
+            throw rnf;
+        } finally {
+            if (parser != null) parser.close();
+        }
     }
     
     private static BaseAdapter createAdapterFromXml(Context c,
@@ -345,6 +823,8 @@ public class Adapters {
     private static class XmlCursorAdapterParser {
         private static final String ADAPTER_CURSOR_BIND = "bind";
         private static final String ADAPTER_CURSOR_SELECT = "select";
+        private static final String ADAPTER_CURSOR_SOURCE = "source";
+        private static final String ADAPTER_CURSOR_LAYOUT = "layout";
         private static final String ADAPTER_CURSOR_AS_STRING = "string";
         private static final String ADAPTER_CURSOR_AS_IMAGE = "image";
         private static final String ADAPTER_CURSOR_AS_TAG = "tag";
@@ -358,9 +838,11 @@ public class Adapters {
         private final AttributeSet mAttrs;
         private final int mId;
 
-        private final HashMap<String, CursorBinder> mBinders;
+        private final ArrayList<CursorBinder> mBinders;
         private final ArrayList<String> mFrom;
         private final ArrayList<Integer> mTo;
+        private final ArrayList<CursorSource> mSources;
+        private final ArrayList<RowType> mRowTypes;
         private final CursorTransformation mIdentity;
         private final Resources mResources;
         
@@ -371,9 +853,11 @@ public class Adapters {
             mId = id;
             
             mResources = mContext.getResources();
-            mBinders = new HashMap<String, CursorBinder>();
+            mBinders = new ArrayList<CursorBinder>();
             mFrom = new ArrayList<String>();
             mTo = new ArrayList<Integer>();
+            mSources = new ArrayList<CursorSource>();
+            mRowTypes = new ArrayList<RowType>();
             mIdentity = new IdentityTransformation(mContext);
         }
         
@@ -385,6 +869,7 @@ public class Adapters {
             String uri = a.getString(R.styleable.CursorAdapter_uri);
             String selection = a.getString(R.styleable.CursorAdapter_selection);
             String sortOrder = a.getString(R.styleable.CursorAdapter_sortOrder);
+            String layoutColumn = a.getString(R.styleable.CursorAdapter_layoutColumn);
             int layout = a.getResourceId(R.styleable.CursorAdapter_layout, 0);
             if (layout == 0) {
                 throw new IllegalArgumentException("The layout specified in " +
@@ -407,9 +892,13 @@ public class Adapters {
                 String name = parser.getName();
                 
                 if (ADAPTER_CURSOR_BIND.equals(name)) {
-                    parseBindTag();
+                    parseBindTag(mFrom, mTo, mBinders);
                 } else if (ADAPTER_CURSOR_SELECT.equals(name)) {
                     //parseSelectTag();
+                } else if (ADAPTER_CURSOR_SOURCE.equals(name)) {
+                    parseSourceTag();
+                } else if (ADAPTER_CURSOR_LAYOUT.equals(name)) {
+                    parseLayoutTag();
                 } else {
                     throw new RuntimeException("Unknown tag name " + parser.getName() + " in " +
                             resources.getResourceEntryName(mId));
@@ -418,127 +907,781 @@ public class Adapters {
                 
             }
             
+            String[] fromArray = mFrom.toArray(new String[mFrom.size()]);
+            int[] toArray = new int[mTo.size()];
+            for (int i = 0; i < toArray.length; i++) {
+                toArray[i] = mTo.get(i);
+            }
+            CursorBinder[] binders = mBinders.toArray(new CursorBinder[mBinders.size()]);
+            CursorSource[] sources = mSources.toArray(new CursorSource[mSources.size()]);
             
-            return null;
-        }
-        
-        private void parseBindTag() throws IOException, XmlPullParserException {
+            if (!mRowTypes.isEmpty() && layoutColumn == null) {
+                throw new IllegalArgumentException("The adapter defined in " +
+                        resources.getResourceEntryName(mId) +
+                        " declares layouts but no layoutColumn");
+            }
+            
+            // Bindings declared on the adapter apply to every row type
+            RowType[] rowTypes = new RowType[mRowTypes.size()];
+            for (int i = 0; i < rowTypes.length; i++) {
+                RowType rowType = mRowTypes.get(i);
+                rowType.from.addAll(0, mFrom);
+                rowType.to.addAll(0, mTo);
+                rowType.binders.addAll(0, mBinders);
+                rowTypes[i] = rowType;
+            }
             
+            return new XmlCursorAdapter(mContext, layout, uri, fromArray, toArray, selection,
+                    null, sortOrder, binders, sources, layoutColumn, rowTypes);
         }
-    }
-    
-    private static interface ManagedAdapter {
-        void load();
-    }
-    
-    private static class XmlCursorAdapter extends SimpleCursorAdapter implements ManagedAdapter {
-        private Context mContext;
-        private String mUri;
-        private final String mSelection;
-        private final String[] mSelectionArgs;
-        private final String mSortOrder;
-        private final int[] mTo;
-        private final String[] mFrom;
-        private final String[] mColumns;
-        private final CursorBinder[] mBinders;
-        private AsyncTask<Void,Void,Cursor> mLoadTask;
         
-        public XmlCursorAdapter(Context context, int layout, String uri, String[] from, int[] to,
-                String selection, String[] selectionArgs, String sortOrder,
-                HashMap<String, CursorBinder> binders) {
-            super(context, layout, null, from, to);
-            mContext = context;
-            mUri = uri;
-            mFrom = from;
-            mTo = to;
-            mSelection = selection;
-            mSelectionArgs = selectionArgs;
-            mSortOrder = sortOrder;
-            mColumns = new String[from.length + 1];
-            // This is mandatory in CursorAdapter
-            mColumns[0] = "_id";
-            System.arraycopy(from, 0, mColumns, 1, from.length);
+        private void parseBindTag(ArrayList<String> from, ArrayList<Integer> to,
+                ArrayList<CursorBinder> binders) throws IOException, XmlPullParserException {
+            Resources resources = mResources;
+            TypedArray a = resources.obtainAttributes(mAttrs,
+                    R.styleable.CursorAdapter_BindItem);
             
-            CursorBinder basic = new StringBinder(context, new IdentityTransformation(context));
-            final int count = from.length;
-            mBinders = new CursorBinder[count];
+            String column = a.getString(R.styleable.CursorAdapter_BindItem_from);
+            if (column == null) {
+                throw new IllegalArgumentException("A bind item in " +
+                        resources.getResourceEntryName(mId) + " does not have a 'from' attribute");
+            }
             
-            for (int i=0; i<count; i++) {
-                CursorBinder binder = binders.get(from[i]);
-                if (binder == null) binder = basic;
-                mBinders[i] = binder;
+            int view = a.getResourceId(R.styleable.CursorAdapter_BindItem_to, 0);
+            if (view == 0) {
+                throw new IllegalArgumentException("A bind item in " +
+                        resources.getResourceEntryName(mId) + " does not have a 'to' attribute");
             }
-        }
-        
-        @Override
-        public void bindView(View view, Context context, Cursor cursor) {
-            final int count = mTo.length;
-            final int[] to = mTo;
-            final CursorBinder[] binders = mBinders;
             
-            for (int i=0; i<count; i++) {
-                final View v = view.findViewById(to[i]);
-                if (v != null) {
-                    // Not optimal, the column index could be cached
-                    binders[i].bind(v, cursor, cursor.getColumnIndex(mFrom[i]));
+            String bindType = a.getString(R.styleable.CursorAdapter_BindItem_as);
+            if (bindType == null) {
+                throw new IllegalArgumentException("A bind item in " +
+                        resources.getResourceEntryName(mId) + " does not have an 'as' attribute");
+            }
+            
+            a.recycle();
+            
+            HashMap<String, String> mappings = null;
+            CursorTransformation transformation = null;
+            
+            XmlPullParser parser = mParser;
+            int type;
+            int depth = parser.getDepth();
+            
+            while(((type = parser.next()) != XmlPullParser.END_TAG || parser.getDepth() > depth ) &&
+                    type != XmlPullParser.END_DOCUMENT) {
+                
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                
+                String name = parser.getName();
+                
+                if (ADAPTER_CURSOR_MAP.equals(name)) {
+                    if (mappings == null) mappings = new HashMap<String, String>();
+                    parseMapTag(bindType, mappings);
+                } else if (ADAPTER_CURSOR_TRANSFORM.equals(name)) {
+                    transformation = parseTransformTag();
+                } else {
+                    throw new RuntimeException("Unknown tag name " + parser.getName() + " in " +
+                            resources.getResourceEntryName(mId));
+                }
+            }
+            
+            if (mappings != null) {
+                if (transformation != null) {
+                    throw new IllegalArgumentException("A bind item in " +
+                            resources.getResourceEntryName(mId) +
+                            " cannot mix map and transform items");
                 }
+                transformation = new MapTransformation(mContext, mappings);
+            } else if (transformation == null) {
+                transformation = mIdentity;
             }
+            
+            from.add(column);
+            to.add(view);
+            binders.add(findBinder(bindType, transformation));
         }
-
-        @Override
-        public void load() {
-            if (mUri != null) {
-                mLoadTask = new QueryTask().execute();
+        
+        private void parseMapTag(String bindType, HashMap<String, String> mappings) {
+            Resources resources = mResources;
+            TypedArray a = resources.obtainAttributes(mAttrs,
+                    R.styleable.CursorAdapter_MapItem);
+            
+            String from = a.getString(R.styleable.CursorAdapter_MapItem_fromValue);
+            if (from == null) {
+                throw new IllegalArgumentException("A map item in " +
+                        resources.getResourceEntryName(mId) +
+                        " does not have a 'fromValue' attribute");
+            }
+            
+            String to;
+            if (ADAPTER_CURSOR_AS_DRAWABLE.equals(bindType)) {
+                // Drawables are mapped to resource identifiers
+                int id = a.getResourceId(R.styleable.CursorAdapter_MapItem_toValue, 0);
+                to = id != 0 ? String.valueOf(id) : null;
+            } else {
+                to = a.getString(R.styleable.CursorAdapter_MapItem_toValue);
             }
+            if (to == null) {
+                throw new IllegalArgumentException("A map item in " +
+                        resources.getResourceEntryName(mId) +
+                        " does not have a valid 'toValue' attribute");
+            }
+            
+            a.recycle();
+            
+            mappings.put(from, to);
         }
         
-        void seturi(String uri) {
-            mUri = uri;
+        private CursorTransformation parseTransformTag() {
+            Resources resources = mResources;
+            TypedArray a = resources.obtainAttributes(mAttrs,
+                    R.styleable.CursorAdapter_TransformItem);
+            
+            String className = a.getString(R.styleable.CursorAdapter_TransformItem_withClass);
+            String expression = a.getString(R.styleable.CursorAdapter_TransformItem_withExpression);
+            
+            a.recycle();
+            
+            if (className != null) {
+                return instantiate(className, CursorTransformation.class,
+                        new Class<?>[] { Context.class }, mContext);
+            } else if (expression != null) {
+                return new ExpressionTransformation(mContext, expression);
+            }
+            
+            throw new IllegalArgumentException("A transform item in " +
+                    resources.getResourceEntryName(mId) +
+                    " must have a 'withClass' or 'withExpression' attribute");
         }
         
-        @Override
-        public void changeCursor(Cursor cursor) {
-            if (mLoadTask != null && mLoadTask.getStatus() != QueryTask.Status.FINISHED) {
-                mLoadTask.cancel(true);
-                mLoadTask = null;
+        private CursorBinder findBinder(String type, CursorTransformation transformation) {
+            if (ADAPTER_CURSOR_AS_STRING.equals(type)) {
+                return new StringBinder(mContext, transformation);
+            } else if (ADAPTER_CURSOR_AS_IMAGE.equals(type)) {
+                return new ImageBinder(mContext, transformation);
+            } else if (ADAPTER_CURSOR_AS_TAG.equals(type)) {
+                return new TagBinder(mContext, transformation);
+            } else if (ADAPTER_CURSOR_AS_IMAGE_URI.equals(type)) {
+                return new UriImageBinder(mContext, transformation);
+            } else if (ADAPTER_CURSOR_AS_DRAWABLE.equals(type)) {
+                return new DrawableBinder(mContext, transformation);
             }
-            super.changeCursor(cursor);
+            
+            return instantiate(type, CursorBinder.class,
+                    new Class<?>[] { Context.class, CursorTransformation.class },
+                    mContext, transformation);
         }
         
-        class QueryTask extends AsyncTask<Void, Void, Cursor> {
-            @Override
-            protected Cursor doInBackground(Void... params) {
-                if (mContext instanceof Activity) {
-                    return ((Activity) mContext).managedQuery(
-                            Uri.parse(mUri), mColumns, mSelection, mSelectionArgs, mSortOrder);
-                } else {
-                    return mContext.getContentResolver().query(
-                            Uri.parse(mUri), mColumns, mSelection, mSelectionArgs, mSortOrder);
-                }
+        private <T> T instantiate(String className, Class<T> type, Class<?>[] signature,
+                Object... arguments) {
+            final String entry = mResources.getResourceEntryName(mId);
+            
+            if (mContext.isRestricted()) {
+                throw new IllegalArgumentException("Custom class " + className + " in " +
+                        entry + " cannot be used with a restricted context");
             }
             
-            @Override
-            protected void onPostExecute(Cursor result) {
-                if (!isCancelled()) {
-                    
-                }
+            Class<?> klass;
+            try {
+                klass = Class.forName(className, true, mContext.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException("Unknown class " + className + " in " +
+                        entry, e);
             }
             
+            if (!type.isAssignableFrom(klass)) {
+                throw new IllegalArgumentException("Class " + className + " in " + entry +
+                        " is not an implementation of " + type.getName());
+            }
+            
+            try {
+                return type.cast(klass.getConstructor(signature).newInstance(arguments));
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Cannot instantiate class " + className +
+                        " in " + entry, e);
+            }
         }
         
-    }
-    
-    /**
-     * Binds a String to a TextView.
-     */
-    private static class StringBinder extends CursorBinder {
-        public StringBinder(Context context, CursorTransformation transformation) {
-            super(context, transformation);
-        }
-        
-        @Override
-        public boolean bind(View view, Cursor cursor, int columnIndex) {
-            if (view instanceof TextView) {
+        private void parseLayoutTag() throws IOException, XmlPullParserException {
+            Resources resources = mResources;
+            TypedArray a = resources.obtainAttributes(mAttrs,
+                    R.styleable.CursorAdapter_LayoutItem);
+            
+            int layout = a.getResourceId(R.styleable.CursorAdapter_LayoutItem_layout, 0);
+            String value = a.getString(R.styleable.CursorAdapter_LayoutItem_whenValue);
+            
+            a.recycle();
+            
+            if (layout == 0 || value == null) {
+                throw new IllegalArgumentException("A layout in " +
+                        resources.getResourceEntryName(mId) +
+                        " must specify layout and whenValue");
+            }
+            
+            for (RowType other : mRowTypes) {
+                if (value.equals(other.value)) {
+                    throw new IllegalArgumentException("A layout in " +
+                            resources.getResourceEntryName(mId) +
+                            " uses the whenValue " + value + " more than once");
+                }
+            }
+            
+            RowType rowType = new RowType(layout, value);
+            
+            XmlPullParser parser = mParser;
+            int type;
+            int depth = parser.getDepth();
+            
+            while(((type = parser.next()) != XmlPullParser.END_TAG || parser.getDepth() > depth ) &&
+                    type != XmlPullParser.END_DOCUMENT) {
+                
+                if (type != XmlPullParser.START_TAG) {
+                    continue;
+                }
+                
+                String name = parser.getName();
+                
+                if (ADAPTER_CURSOR_BIND.equals(name)) {
+                    parseBindTag(rowType.from, rowType.to, rowType.binders);
+                } else {
+                    throw new RuntimeException("Unknown tag name " + parser.getName() + " in " +
+                            resources.getResourceEntryName(mId));
+                }
+            }
+            
+            mRowTypes.add(rowType);
+        }
+        
+        private void parseSourceTag() {
+            Resources resources = mResources;
+            TypedArray a = resources.obtainAttributes(mAttrs,
+                    R.styleable.CursorAdapter_SourceItem);
+            
+            String uri = a.getString(R.styleable.CursorAdapter_SourceItem_uri);
+            String selection = a.getString(R.styleable.CursorAdapter_SourceItem_selection);
+            String sortOrder = a.getString(R.styleable.CursorAdapter_SourceItem_sortOrder);
+            
+            a.recycle();
+            
+            if (uri == null) {
+                throw new IllegalArgumentException("A source in " +
+                        resources.getResourceEntryName(mId) + " does not specify a uri");
+            }
+            
+            mSources.add(new CursorSource(uri, selection, sortOrder));
+        }
+    }
+    
+    /**
+     * A content provider query declared with a &lt;source /&gt; tag.
+     */
+    private static class CursorSource {
+        final String uri;
+        final String selection;
+        final String sortOrder;
+        
+        CursorSource(String uri, String selection, String sortOrder) {
+            this.uri = uri;
+            this.selection = selection;
+            this.sortOrder = sortOrder;
+        }
+    }
+    
+    /**
+     * <p>A cursor concatenating the cursors of several sources, in declaration order.</p>
+     * 
+     * <p>Unlike {@link android.database.MergeCursor}, the cursor of a source can be set
+     * after this cursor was created. Its rows become part of this cursor immediately,
+     * which lets an adapter display its sources as they become available without
+     * creating a new cursor, and registering new observers on every source, each time.</p>
+     */
+    private static class SourcesCursor extends AbstractCursor {
+        private final Cursor[] mCursors;
+        private final String[] mColumns;
+        private Cursor mCursor;
+        
+        private final DataSetObserver mObserver = new DataSetObserver() {
+            @Override
+            public void onChanged() {
+                // Reset our position so the optimizations in move-to don't screw us
+                mPos = -1;
+            }
+            
+            @Override
+            public void onInvalidated() {
+                mPos = -1;
+            }
+        };
+        
+        private final ContentObserver mContentObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                SourcesCursor.this.onChange(false);
+            }
+        };
+        
+        SourcesCursor(int count, String[] columns) {
+            mCursors = new Cursor[count];
+            mColumns = columns;
+        }
+        
+        /**
+         * Sets the cursor of the source at the specified index. The caller must
+         * notify the observers of this cursor.
+         */
+        void setCursor(int index, Cursor cursor) {
+            cursor.registerDataSetObserver(mObserver);
+            cursor.registerContentObserver(mContentObserver);
+            mCursors[index] = cursor;
+            mPos = -1;
+        }
+        
+        @Override
+        public int getCount() {
+            int count = 0;
+            for (Cursor cursor : mCursors) {
+                if (cursor != null) count += cursor.getCount();
+            }
+            return count;
+        }
+        
+        @Override
+        public boolean onMove(int oldPosition, int newPosition) {
+            // Find the right cursor
+            mCursor = null;
+            int cursorStartPos = 0;
+            for (Cursor cursor : mCursors) {
+                if (cursor == null) continue;
+                
+                final int count = cursor.getCount();
+                if (newPosition < cursorStartPos + count) {
+                    mCursor = cursor;
+                    break;
+                }
+                cursorStartPos += count;
+            }
+            
+            // Move it to the right position
+            if (mCursor != null) {
+                return mCursor.moveToPosition(newPosition - cursorStartPos);
+            }
+            return false;
+        }
+        
+        @Override
+        public String[] getColumnNames() {
+            for (Cursor cursor : mCursors) {
+                if (cursor != null) return cursor.getColumnNames();
+            }
+            return mColumns;
+        }
+        
+        @Override
+        public String getString(int column) {
+            return mCursor.getString(column);
+        }
+        
+        @Override
+        public short getShort(int column) {
+            return mCursor.getShort(column);
+        }
+        
+        @Override
+        public int getInt(int column) {
+            return mCursor.getInt(column);
+        }
+        
+        @Override
+        public long getLong(int column) {
+            return mCursor.getLong(column);
+        }
+        
+        @Override
+        public float getFloat(int column) {
+            return mCursor.getFloat(column);
+        }
+        
+        @Override
+        public double getDouble(int column) {
+            return mCursor.getDouble(column);
+        }
+        
+        @Override
+        public int getType(int column) {
+            return mCursor.getType(column);
+        }
+        
+        @Override
+        public boolean isNull(int column) {
+            return mCursor.isNull(column);
+        }
+        
+        @Override
+        public byte[] getBlob(int column) {
+            return mCursor.getBlob(column);
+        }
+        
+        @Override
+        public void deactivate() {
+            for (Cursor cursor : mCursors) {
+                if (cursor != null) cursor.deactivate();
+            }
+            super.deactivate();
+        }
+        
+        @Override
+        public void close() {
+            for (Cursor cursor : mCursors) {
+                if (cursor != null) {
+                    cursor.unregisterDataSetObserver(mObserver);
+                    cursor.unregisterContentObserver(mContentObserver);
+                    cursor.close();
+                }
+            }
+            super.close();
+        }
+        
+        @Override
+        public boolean requery() {
+            for (Cursor cursor : mCursors) {
+                if (cursor != null && !cursor.requery()) return false;
+            }
+            return super.requery();
+        }
+    }
+    
+    /**
+     * A layout declared with a &lt;layout /&gt; tag and the bindings of its rows.
+     */
+    private static class RowType {
+        final int layout;
+        final String value;
+        final ArrayList<String> from;
+        final ArrayList<Integer> to;
+        final ArrayList<CursorBinder> binders;
+        
+        RowType(int layout, String value) {
+            this.layout = layout;
+            this.value = value;
+            from = new ArrayList<String>();
+            to = new ArrayList<Integer>();
+            binders = new ArrayList<CursorBinder>();
+        }
+    }
+    
+    /**
+     * The bindings of one view type, compiled against the current cursor.
+     */
+    private static class BindPlan {
+        final int layout;
+        final String value;
+        final String[] from;
+        final int[] to;
+        final CursorBinder[] binders;
+        final int[] columns;
+        
+        BindPlan(int layout, String value, String[] from, int[] to, CursorBinder[] binders) {
+            this.layout = layout;
+            this.value = value;
+            this.from = from;
+            this.to = to;
+            this.binders = binders;
+            columns = new int[from.length];
+        }
+        
+        void compile(Cursor cursor) {
+            for (int i = 0; i < from.length; i++) {
+                columns[i] = cursor == null ? -1 : cursor.getColumnIndex(from[i]);
+                binders[i].mTransformation.compile(cursor);
+            }
+        }
+    }
+    
+    private static interface ManagedAdapter {
+        void load();
+    }
+    
+    private static class XmlCursorAdapter extends SimpleCursorAdapter implements ManagedAdapter {
+        private static final int SOURCE_POOL_SIZE = 4;
+        // Shared by all adapters, sources are queried at most SOURCE_POOL_SIZE at a time
+        private static ExecutorService sSourceExecutor;
+        
+        private Context mContext;
+        private String mUri;
+        private final String mSelection;
+        private final String[] mSelectionArgs;
+        private final String mSortOrder;
+        private final String[] mColumns;
+        private final CursorSource[] mSources;
+        private final String mLayoutColumn;
+        private final BindPlan[] mPlans;
+        private final LayoutInflater mInflater;
+        private int mLayoutColumnIndex = -1;
+        private SourcesQuery mSourcesQuery;
+        
+        public XmlCursorAdapter(Context context, int layout, String uri, String[] from, int[] to,
+                String selection, String[] selectionArgs, String sortOrder,
+                CursorBinder[] binders, CursorSource[] sources,
+                String layoutColumn, RowType[] rowTypes) {
+            super(context, layout, null, from, to);
+            mContext = context;
+            mUri = uri;
+            mSelection = selection;
+            mSelectionArgs = selectionArgs;
+            mSortOrder = sortOrder;
+            mSources = sources;
+            mLayoutColumn = layoutColumn;
+            mInflater = LayoutInflater.from(context);
+            
+            // The adapter's own layout is view type 0, used by rows matching no <layout />
+            mPlans = new BindPlan[rowTypes.length + 1];
+            mPlans[0] = new BindPlan(layout, null, from, to, binders);
+            for (int i = 0; i < rowTypes.length; i++) {
+                final RowType rowType = rowTypes[i];
+                final String[] typeFrom = rowType.from.toArray(new String[rowType.from.size()]);
+                final int[] typeTo = new int[rowType.to.size()];
+                for (int j = 0; j < typeTo.length; j++) {
+                    typeTo[j] = rowType.to.get(j);
+                }
+                mPlans[i + 1] = new BindPlan(rowType.layout, rowType.value, typeFrom, typeTo,
+                        rowType.binders.toArray(new CursorBinder[rowType.binders.size()]));
+            }
+            
+            // This is mandatory in CursorAdapter
+            final ArrayList<String> columns = new ArrayList<String>();
+            columns.add("_id");
+            for (BindPlan plan : mPlans) {
+                for (String column : plan.from) {
+                    if (!columns.contains(column)) columns.add(column);
+                }
+                for (CursorBinder binder : plan.binders) {
+                    binder.mTransformation.addColumns(columns);
+                }
+            }
+            if (layoutColumn != null && !columns.contains(layoutColumn)) {
+                columns.add(layoutColumn);
+            }
+            mColumns = columns.toArray(new String[columns.size()]);
+        }
+        
+        @Override
+        public int getViewTypeCount() {
+            return mPlans.length;
+        }
+        
+        @Override
+        public int getItemViewType(int position) {
+            if (mPlans.length == 1 || !mDataValid || !mCursor.moveToPosition(position)) {
+                return 0;
+            }
+            return getViewType(mCursor);
+        }
+        
+        private int getViewType(Cursor cursor) {
+            if (mLayoutColumnIndex < 0) return 0;
+            
+            final String value = cursor.getString(mLayoutColumnIndex);
+            if (value == null) return 0;
+            
+            final BindPlan[] plans = mPlans;
+            for (int i = 1; i < plans.length; i++) {
+                if (value.equals(plans[i].value)) return i;
+            }
+            return 0;
+        }
+        
+        @Override
+        public View newView(Context context, Cursor cursor, ViewGroup parent) {
+            return mInflater.inflate(mPlans[getViewType(cursor)].layout, parent, false);
+        }
+        
+        @Override
+        public Cursor swapCursor(Cursor cursor) {
+            // Resolve the column indices once per cursor instead of once per row. This
+            // must happen before super.swapCursor() notifies the observers, which may
+            // read the adapter synchronously
+            mLayoutColumnIndex = cursor == null || mLayoutColumn == null ?
+                    -1 : cursor.getColumnIndex(mLayoutColumn);
+            for (BindPlan plan : mPlans) {
+                plan.compile(cursor);
+            }
+            
+            return super.swapCursor(cursor);
+        }
+        
+        @Override
+        public void bindView(View view, Context context, Cursor cursor) {
+            final BindPlan plan = mPlans[getViewType(cursor)];
+            final int count = plan.to.length;
+            final int[] to = plan.to;
+            final int[] columns = plan.columns;
+            final CursorBinder[] binders = plan.binders;
+            
+            for (int i=0; i<count; i++) {
+                final View v = view.findViewById(to[i]);
+                if (v != null) {
+                    binders[i].bind(v, cursor, columns[i]);
+                }
+            }
+        }
+
+        @Override
+        public void load() {
+            cancelLoad();
+            
+            // The adapter's own uri is queried like any other source
+            ArrayList<CursorSource> sources = new ArrayList<CursorSource>(mSources.length + 1);
+            if (mUri != null) {
+                sources.add(new CursorSource(mUri, mSelection, mSortOrder));
+            }
+            Collections.addAll(sources, mSources);
+            
+            if (!sources.isEmpty()) {
+                mSourcesQuery = new SourcesQuery(sources.toArray(new CursorSource[sources.size()]));
+                mSourcesQuery.start();
+            }
+        }
+        
+        private static synchronized ExecutorService getSourceExecutor() {
+            if (sSourceExecutor == null) {
+                sSourceExecutor = Executors.newFixedThreadPool(SOURCE_POOL_SIZE);
+            }
+            return sSourceExecutor;
+        }
+        
+        void seturi(String uri) {
+            mUri = uri;
+        }
+        
+        @Override
+        public void changeCursor(Cursor cursor) {
+            cancelLoad();
+            super.changeCursor(cursor);
+        }
+        
+        private void cancelLoad() {
+            if (mSourcesQuery != null) {
+                mSourcesQuery.cancel();
+                mSourcesQuery = null;
+            }
+        }
+        
+        /**
+         * Queries several sources concurrently and publishes their rows, in declaration
+         * order, each time one of them completes. The cursors of the sources are owned
+         * by a single {@link SourcesCursor}. When the adapter belongs to an activity, that
+         * cursor is managed by the activity, like the cursor returned by
+         * {@link Activity#managedQuery}, and is closed when the activity is destroyed.
+         */
+        class SourcesQuery {
+            private final CursorSource[] mQueries;
+            private final SourcesCursor mCursor;
+            private final Future<?>[] mFutures;
+            private final Handler mHandler;
+            // Only accessed from the main thread
+            private boolean mCancelled;
+            private boolean mPublished;
+            
+            SourcesQuery(CursorSource[] queries) {
+                mQueries = queries;
+                mCursor = new SourcesCursor(queries.length, mColumns);
+                mFutures = new Future<?>[queries.length];
+                mHandler = new Handler(Looper.getMainLooper());
+            }
+            
+            void start() {
+                if (mContext instanceof Activity) {
+                    ((Activity) mContext).startManagingCursor(mCursor);
+                }
+                
+                final ExecutorService executor = getSourceExecutor();
+                final int count = mQueries.length;
+                
+                for (int i = 0; i < count; i++) {
+                    final int index = i;
+                    final CursorSource source = mQueries[i];
+                    mFutures[i] = executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            final Cursor cursor;
+                            try {
+                                cursor = mContext.getContentResolver().query(
+                                        Uri.parse(source.uri), mColumns, source.selection,
+                                        mSelectionArgs, source.sortOrder);
+                            } catch (RuntimeException e) {
+                                // A failing source must not prevent the others from showing
+                                Log.e(LOG_TAG, "Could not query the source " + source.uri, e);
+                                return;
+                            }
+                            
+                            mHandler.post(new Runnable() {
+                                @Override
+                                public void run() {
+                                    publish(index, cursor);
+                                }
+                            });
+                        }
+                    });
+                }
+            }
+            
+            void cancel() {
+                mCancelled = true;
+                for (Future<?> future : mFutures) {
+                    if (future != null) future.cancel(true);
+                }
+                if (mContext instanceof Activity) {
+                    ((Activity) mContext).stopManagingCursor(mCursor);
+                }
+                // Once published, the cursor is closed by the adapter
+                if (!mPublished) mCursor.close();
+            }
+            
+            private void publish(int index, Cursor cursor) {
+                if (mCancelled) {
+                    if (cursor != null) cursor.close();
+                    return;
+                }
+                // The activity managing the cursor was destroyed
+                if (mCursor.isClosed()) {
+                    if (cursor != null) cursor.close();
+                    cancel();
+                    return;
+                }
+                if (cursor == null) {
+                    Log.w(LOG_TAG, "The source " + mQueries[index].uri + " returned no cursor");
+                    return;
+                }
+                
+                mCursor.setCursor(index, cursor);
+                
+                if (!mPublished) {
+                    mPublished = true;
+                    final Cursor old = swapCursor(mCursor);
+                    if (old != null) old.close();
+                } else {
+                    notifyDataSetChanged();
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Binds a String to a TextView.
+     */
+    private static class StringBinder extends CursorBinder {
+        public StringBinder(Context context, CursorTransformation transformation) {
+            super(context, transformation);
+        }
+        
+        @Override
+        public boolean bind(View view, Cursor cursor, int columnIndex) {
+            if (view instanceof TextView) {
                 final String text = mTransformation.transform(cursor, columnIndex);
                 ((TextView) view).setText(text);
                 return true;
@@ -548,6 +1691,117 @@ public class Adapters {
         
     }
     
+    /**
+     * Binds an image blob to an ImageView.
+     */
+    private static class ImageBinder extends CursorBinder {
+        public ImageBinder(Context context, CursorTransformation transformation) {
+            super(context, transformation);
+        }
+        
+        @Override
+        public boolean bind(View view, Cursor cursor, int columnIndex) {
+            if (view instanceof ImageView) {
+                final byte[] data = cursor.getBlob(columnIndex);
+                final Bitmap bitmap = data == null ?
+                        null : BitmapFactory.decodeByteArray(data, 0, data.length);
+                ((ImageView) view).setImageBitmap(bitmap);
+                return true;
+            }
+            return false;
+        }
+        
+    }
+    
+    /**
+     * Binds the image located at a URI to an ImageView. Decoded images are kept in
+     * the {@link CacheBudget#CACHE_IMAGE_URI} cache.
+     */
+    private static class UriImageBinder extends CursorBinder {
+        private final BitmapCache<String> mCache;
+        
+        public UriImageBinder(Context context, CursorTransformation transformation) {
+            super(context, transformation);
+            mCache = getImageCache();
+        }
+        
+        @Override
+        public boolean bind(View view, Cursor cursor, int columnIndex) {
+            if (view instanceof ImageView) {
+                final String uri = mTransformation.transform(cursor, columnIndex);
+                
+                Bitmap bitmap = null;
+                if (uri != null) {
+                    bitmap = mCache.get(uri);
+                    if (bitmap == null) {
+                        bitmap = decode(uri);
+                        if (bitmap != null) mCache.put(uri, bitmap);
+                    }
+                }
+                
+                ((ImageView) view).setImageBitmap(bitmap);
+                return true;
+            }
+            return false;
+        }
+        
+        private Bitmap decode(String uri) {
+            InputStream stream = null;
+            try {
+                stream = mContext.getContentResolver().openInputStream(Uri.parse(uri));
+                return BitmapFactory.decodeStream(stream);
+            } catch (IOException e) {
+                Log.w(LOG_TAG, "Unable to open the image " + uri, e);
+                return null;
+            } finally {
+                if (stream != null) {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            }
+        }
+        
+    }
+    
+    /**
+     * Binds a drawable resource identifier to an ImageView.
+     */
+    private static class DrawableBinder extends CursorBinder {
+        public DrawableBinder(Context context, CursorTransformation transformation) {
+            super(context, transformation);
+        }
+        
+        @Override
+        public boolean bind(View view, Cursor cursor, int columnIndex) {
+            if (view instanceof ImageView) {
+                final int resource = mTransformation.transformToResource(cursor, columnIndex);
+                ((ImageView) view).setImageResource(resource);
+                return true;
+            }
+            return false;
+        }
+        
+    }
+    
+    /**
+     * Binds a String to the tag of a View.
+     */
+    private static class TagBinder extends CursorBinder {
+        public TagBinder(Context context, CursorTransformation transformation) {
+            super(context, transformation);
+        }
+        
+        @Override
+        public boolean bind(View view, Cursor cursor, int columnIndex) {
+            view.setTag(mTransformation.transform(cursor, columnIndex));
+            return true;
+        }
+        
+    }
+    
     
     private static class IdentityTransformation extends CursorTransformation {
         public IdentityTransformation(Context context) {
@@ -560,6 +1814,108 @@ public class Adapters {
         }
         
     }
+    
+    /**
+     * Maps the values declared with &lt;map /&gt; items. Values without a mapping are
+     * returned unchanged.
+     */
+    private static class MapTransformation extends CursorTransformation {
+        private final HashMap<String, String> mMappings;
+        
+        public MapTransformation(Context context, HashMap<String, String> mappings) {
+            super(context);
+            mMappings = mappings;
+        }
+        
+        @Override
+        public String transform(Cursor cursor, int columnIndex) {
+            final String value = cursor.getString(columnIndex);
+            final String transformed = mMappings.get(value);
+            return transformed == null ? value : transformed;
+        }
+        
+        @Override
+        public int transformToResource(Cursor cursor, int columnIndex) {
+            final String transformed = mMappings.get(cursor.getString(columnIndex));
+            if (transformed != null) {
+                try {
+                    return Integer.parseInt(transformed);
+                } catch (NumberFormatException e) {
+                    // Not a resource identifier, fall back to the column's value
+                }
+            }
+            return super.transformToResource(cursor, columnIndex);
+        }
+        
+    }
+    
+    /**
+     * Replaces each column name surrounded by curly braces in an expression with
+     * the value of that column.
+     */
+    private static class ExpressionTransformation extends CursorTransformation {
+        // Alternates constant text and column names, starting with constant text
+        private final ArrayList<String> mSegments;
+        // Index in the current cursor of every column name of mSegments
+        private final int[] mColumnIndices;
+        
+        public ExpressionTransformation(Context context, String expression) {
+            super(context);
+            mSegments = new ArrayList<String>();
+            
+            int start = 0;
+            int open;
+            while ((open = expression.indexOf('{', start)) != -1) {
+                final int close = expression.indexOf('}', open);
+                if (close == -1) break;
+                
+                mSegments.add(expression.substring(start, open));
+                mSegments.add(expression.substring(open + 1, close));
+                start = close + 1;
+            }
+            mSegments.add(expression.substring(start));
+            mColumnIndices = new int[mSegments.size() / 2];
+        }
+        
+        @Override
+        void addColumns(ArrayList<String> columns) {
+            final ArrayList<String> segments = mSegments;
+            for (int i = 1; i < segments.size(); i += 2) {
+                final String column = segments.get(i);
+                if (!columns.contains(column)) columns.add(column);
+            }
+        }
+        
+        @Override
+        void compile(Cursor cursor) {
+            final ArrayList<String> segments = mSegments;
+            final int[] indices = mColumnIndices;
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = cursor == null ?
+                        -1 : cursor.getColumnIndexOrThrow(segments.get(i * 2 + 1));
+            }
+        }
+        
+        @Override
+        public String transform(Cursor cursor, int columnIndex) {
+            final StringBuilder builder = new StringBuilder();
+            final ArrayList<String> segments = mSegments;
+            final int[] indices = mColumnIndices;
+            final int count = segments.size();
+            
+            for (int i = 0; i < count; i++) {
+                if ((i & 1) == 0) {
+                    builder.append(segments.get(i));
+                } else {
+                    final String value = cursor.getString(indices[i / 2]);
+                    if (value != null) builder.append(value);
+                }
+            }
+            
+            return builder.toString();
+        }
+        
+    }
 }
 
 
@@ -0,0 +1,115 @@
+package com.example.xmladapters;
+
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.provider.ContactsContract;
+import android.view.View;
+import android.widget.TextView;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+
+/**
+ * This custom cursor binder is used by the adapter defined in res/xml to
+ * bind contacts photos to their respective list item. This binder simply
+ * queries a contact's photo based on the contact's id and sets the
+ * photo as a compound drawable on the TextView used to display the contact's
+ * name.
+ */
+public class ContactPhotoBinder extends Adapters.CursorBinder {
+    /**
+     * Name of the cache of contacts photos, shared by all the binders.
+     */
+    public static final String CACHE_CONTACT_PHOTOS = "contact-photos";
+    
+    private static final int PHOTO_SIZE_DIP = 54;
+    // Default budget of the photos cache, in bytes
+    private static final int PHOTO_CACHE_BUDGET = 2 * 1024 * 1024;
+    
+    private static Adapters.BitmapCache<Long> sCache;
+    
+    private final Drawable mDefault;
+    private final Adapters.BitmapCache<Long> mCache;
+    // Contacts known to have no photo
+    private final HashSet<Long> mNoPhoto;
+    private final Resources mResources;
+    private final int mPhotoSize;
+
+    public ContactPhotoBinder(Context context, Adapters.CursorTransformation transformation) {
+        super(context, transformation);
+
+        mResources = mContext.getResources();
+        // Default picture when no photo is available
+        mDefault = mResources.getDrawable(R.drawable.ic_launcher);
+        mCache = getCache();
+        mNoPhoto = new HashSet<Long>();
+
+        mPhotoSize = (int) (PHOTO_SIZE_DIP * mResources.getDisplayMetrics().density + 0.5f);
+    }
+
+    private static synchronized Adapters.BitmapCache<Long> getCache() {
+        if (sCache == null) {
+            sCache = Adapters.getCacheBudget().register(new Adapters.BitmapCache<Long>(
+                    CACHE_CONTACT_PHOTOS, Adapters.CacheBudget.REBUILD_COST_QUERY,
+                    PHOTO_CACHE_BUDGET));
+        }
+        return sCache;
+    }
+
+    @Override
+    public boolean bind(View view, Cursor cursor, int columnIndex) {
+        if (!(view instanceof TextView)) {
+            return false;
+        }
+        
+        final long id = cursor.getLong(columnIndex);
+        
+        // First check whether we have already cached the contact's photo
+        Bitmap bitmap = mCache.get(id);
+        
+        if (bitmap == null && !mNoPhoto.contains(id)) {
+            // If the photo wasn't in the cache, ask the contacts provider for
+            // an input stream we can use to load the photo
+            Uri uri = ContentUris.withAppendedId(ContactsContract.Contacts.CONTENT_URI, id);
+            InputStream stream = ContactsContract.Contacts.openContactPhotoInputStream(
+                    mContext.getContentResolver(), uri);
+
+            if (stream != null) {
+                try {
+                    // decodeStream returns null if the photo cannot be decoded
+                    bitmap = BitmapFactory.decodeStream(stream);
+                } finally {
+                    try {
+                        stream.close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            }
+
+            // Remember the photo associated with this contact
+            if (bitmap != null) {
+                mCache.put(id, bitmap);
+            } else {
+                mNoPhoto.add(id);
+            }
+        }
+        
+        // Creates the drawable for the contact's photo or use our fallback drawable.
+        // Drawables are not cached since they keep a reference to their view.
+        Drawable d = bitmap != null ? new BitmapDrawable(mResources, bitmap) : mDefault;
+        d.setBounds(0, 0, mPhotoSize, mPhotoSize);
+        
+        ((TextView) view).setCompoundDrawables(d, null, null, null);
+
+        return true;
+    }
+}
@@ -22,5 +22,17 @@ public class ContactsListActivity extends ListActivity {
 //        setListAdapter()
     }
     
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        Adapters.getCacheBudget().onTrimMemory(level);
+    }
+    
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        Adapters.getCacheBudget().onLowMemory();
+    }
+    
     
 }
@@ -0,0 +1,114 @@
+package com.example.xmladapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+import android.support.v4.widget.CursorAdapter;
+import android.widget.ListView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowContentResolver;
+
+/**
+ * Flings through the adapters defined in res/xml, loaded from their uri against a
+ * synthetic provider, and fails when a frame exceeds the frame budget. The adapter
+ * is flung through once to warm up before the measured fling.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "../AndroidManifest.xml")
+public class AdapterScrollTest {
+    private static final long FRAME_BUDGET_NANOS = 16000000L;
+    private static final int VISIBLE_ROWS = 12;
+    private static final int ROWS_PER_FRAME = 3;
+    private static final long LOAD_TIMEOUT_MILLIS = 10000L;
+
+    private Context mContext;
+    private ListView mParent;
+
+    @Before
+    public void setUp() {
+        mContext = Robolectric.application;
+        mParent = new ListView(mContext);
+        // Keep the results of the sources on the UI thread until the test runs them
+        Robolectric.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        Robolectric.unPauseMainLooper();
+    }
+
+    @Test
+    public void contacts() throws InterruptedException {
+        SyntheticProvider provider = new SyntheticProvider(1000)
+                .column("display_name", 24)
+                .flag("starred");
+
+        assertWithinBudget(simulate(R.xml.contacts, provider), 1000);
+    }
+
+    @Test
+    public void contactsWithLongNames() throws InterruptedException {
+        SyntheticProvider provider = new SyntheticProvider(10000)
+                .column("display_name", 256)
+                .flag("starred");
+
+        assertWithinBudget(simulate(R.xml.contacts, provider), 10000);
+    }
+
+    @Test
+    public void contactsByStarred() throws InterruptedException {
+        SyntheticProvider provider = new SyntheticProvider(10000)
+                .column("display_name", 24)
+                .flag("starred")
+                .flag("times_contacted");
+
+        assertWithinBudget(simulate(R.xml.contacts_by_starred, provider), 10000);
+    }
+
+    private static void assertWithinBudget(ScrollSimulation.Report report, int rows) {
+        assertEquals(rows, report.getRowCount());
+        assertEquals("Frames over budget: " + report, 0, report.getFramesOverBudget());
+    }
+
+    private ScrollSimulation.Report simulate(int id, SyntheticProvider provider)
+            throws InterruptedException {
+
+        ShadowContentResolver.registerProvider(SyntheticProvider.AUTHORITY, provider);
+
+        // The uri of the definition is replaced, the rest goes through the usual load
+        CursorAdapter adapter = Adapters.loadCursorAdapter(mContext, id,
+                SyntheticProvider.CONTENT_URI.toString());
+        awaitCursor(adapter);
+
+        ScrollSimulation simulation = new ScrollSimulation(VISIBLE_ROWS, ROWS_PER_FRAME,
+                FRAME_BUDGET_NANOS);
+        simulation.run(adapter, mParent);
+        ScrollSimulation.Report report = simulation.run(adapter, mParent);
+
+        System.out.println(mContext.getResources().getResourceEntryName(id) + ": " + report);
+        adapter.changeCursor(null);
+
+        return report;
+    }
+
+    /**
+     * Runs the tasks posted to the UI thread until the sources of the adapter
+     * publish their cursor.
+     */
+    private static void awaitCursor(CursorAdapter adapter) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + LOAD_TIMEOUT_MILLIS;
+        while (adapter.getCursor() == null && System.currentTimeMillis() < deadline) {
+            Robolectric.runUiThreadTasks();
+            Thread.sleep(10);
+        }
+        assertNotNull("The adapter was not loaded", adapter.getCursor());
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.xmladapters;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Adapter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+/**
+ * Simulates a fling through an adapter the way a ListView would drive it: a window
+ * of visible rows moves down by a fixed number of rows per frame, rows leaving the
+ * window are recycled per view type and rows entering it are obtained with
+ * {@link Adapter#getView(int, View, ViewGroup)}.
+ *
+ * Every call to getView() is measured, including the inflation of new rows.
+ * Allocations are read from the HotSpot thread allocation counter and are reported
+ * as 0 on JVMs that do not support it.
+ */
+public class ScrollSimulation {
+    private final int mVisibleRows;
+    private final int mRowsPerFrame;
+    private final long mFrameBudgetNanos;
+
+    /**
+     * @param visibleRows Number of rows visible at the same time.
+     * @param rowsPerFrame Number of rows scrolled at every frame.
+     * @param frameBudgetNanos Time a frame may take, in nanoseconds.
+     */
+    public ScrollSimulation(int visibleRows, int rowsPerFrame, long frameBudgetNanos) {
+        mVisibleRows = visibleRows;
+        mRowsPerFrame = rowsPerFrame;
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    public Report run(Adapter adapter, ViewGroup parent) {
+        final int count = adapter.getCount();
+        final int typeCount = adapter.getViewTypeCount();
+
+        final ArrayList<LinkedList<View>> scrap = new ArrayList<LinkedList<View>>(typeCount);
+        for (int i = 0; i < typeCount; i++) {
+            scrap.add(new LinkedList<View>());
+        }
+
+        final View[] window = new View[mVisibleRows];
+        final int[] windowTypes = new int[mVisibleRows];
+        final Report report = new Report(count, mFrameBudgetNanos);
+        final Allocations allocations = new Allocations();
+
+        for (int top = 0; top < count; top += mRowsPerFrame) {
+            long frameTime = 0;
+
+            final int bottom = Math.min(top + mVisibleRows, count);
+            // The first frame fills the whole window, the next ones only the new rows
+            final int first = top == 0 ? 0 : Math.max(top, top - mRowsPerFrame + mVisibleRows);
+
+            for (int position = first; position < bottom; position++) {
+                final int slot = position % mVisibleRows;
+
+                // Recycle the row scrolled out of this slot
+                if (window[slot] != null) {
+                    scrap.get(windowTypes[slot]).add(window[slot]);
+                }
+
+                final int type = adapter.getItemViewType(position);
+                final View convertView = scrap.get(type).poll();
+
+                final long allocated = allocations.current();
+                final long start = System.nanoTime();
+                final View view = adapter.getView(position, convertView, parent);
+                final long time = System.nanoTime() - start;
+
+                report.addRow(time, allocations.current() - allocated);
+                frameTime += time;
+
+                window[slot] = view;
+                windowTypes[slot] = type;
+            }
+
+            report.addFrame(frameTime);
+
+            // The last row is visible, the list cannot scroll any further
+            if (bottom == count) break;
+        }
+
+        return report;
+    }
+
+    /**
+     * Results of a simulation. Times are in nanoseconds.
+     */
+    public static class Report {
+        private final long mFrameBudgetNanos;
+        private final long[] mTimes;
+        private int mRows;
+        private long mAllocatedBytes;
+        private int mRowsOverBudget;
+        private int mFrames;
+        private int mFramesOverBudget;
+
+        Report(int capacity, long frameBudgetNanos) {
+            mTimes = new long[capacity];
+            mFrameBudgetNanos = frameBudgetNanos;
+        }
+
+        void addRow(long time, long allocatedBytes) {
+            mTimes[mRows++] = time;
+            mAllocatedBytes += allocatedBytes;
+            if (time > mFrameBudgetNanos) mRowsOverBudget++;
+        }
+
+        void addFrame(long time) {
+            mFrames++;
+            if (time > mFrameBudgetNanos) mFramesOverBudget++;
+        }
+
+        public int getRowCount() {
+            return mRows;
+        }
+
+        /**
+         * Returns the time of getView() below which the specified percentage of
+         * the rows fall.
+         */
+        public long getPercentile(int percent) {
+            if (mRows == 0) return 0;
+
+            final long[] times = Arrays.copyOf(mTimes, mRows);
+            Arrays.sort(times);
+
+            final int index = (int) Math.ceil(mRows * percent / 100.0) - 1;
+            return times[Math.max(0, Math.min(index, mRows - 1))];
+        }
+
+        public long getAllocatedBytesPerRow() {
+            return mRows == 0 ? 0 : mAllocatedBytes / mRows;
+        }
+
+        /**
+         * Returns the number of rows whose getView() alone exceeded the frame budget.
+         */
+        public int getRowsOverBudget() {
+            return mRowsOverBudget;
+        }
+
+        /**
+         * Returns the number of frames whose new rows, together, exceeded the
+         * frame budget.
+         */
+        public int getFramesOverBudget() {
+            return mFramesOverBudget;
+        }
+
+        public int getFrameCount() {
+            return mFrames;
+        }
+
+        @Override
+        public String toString() {
+            return "rows=" + mRows + " p50=" + getPercentile(50) / 1000 + "us p90=" +
+                    getPercentile(90) / 1000 + "us p99=" + getPercentile(99) / 1000 +
+                    "us max=" + getPercentile(100) / 1000 + "us bytes/row=" +
+                    getAllocatedBytesPerRow() + " rowsOverBudget=" + mRowsOverBudget +
+                    " framesOverBudget=" + mFramesOverBudget + "/" + mFrames;
+        }
+    }
+
+    /**
+     * Reads the number of bytes allocated by the current thread.
+     */
+    private static class Allocations {
+        private final com.sun.management.ThreadMXBean mBean;
+        private final long mThreadId;
+
+        Allocations() {
+            final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean &&
+                    ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                mBean = (com.sun.management.ThreadMXBean) bean;
+                mBean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                mBean = null;
+            }
+            mThreadId = Thread.currentThread().getId();
+        }
+
+        long current() {
+            return mBean == null ? 0 : mBean.getThreadAllocatedBytes(mThreadId);
+        }
+    }
+}
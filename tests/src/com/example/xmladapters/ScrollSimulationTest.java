@@ -0,0 +1,184 @@
+package com.example.xmladapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * Tests the scroll simulation itself: recycling, frames and the report.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = "../AndroidManifest.xml")
+public class ScrollSimulationTest {
+    private Context mContext;
+    private ListView mParent;
+
+    @Before
+    public void setUp() {
+        mContext = Robolectric.application;
+        mParent = new ListView(mContext);
+    }
+
+    @Test
+    public void recyclesViewsOfTheSameType() {
+        // Types repeat every 3 rows and the window holds 12 rows, so every row
+        // can reuse the row it replaces
+        TypedAdapter adapter = new TypedAdapter(mContext, 100, 3);
+        ScrollSimulation.Report report = new ScrollSimulation(12, 3, Long.MAX_VALUE)
+                .run(adapter, mParent);
+
+        assertEquals(100, report.getRowCount());
+        assertEquals(0, adapter.mMismatches);
+        assertEquals(12, adapter.mCreated);
+    }
+
+    @Test
+    public void recyclesPerType() {
+        // Types repeat every 5 rows, rows cannot always reuse the row they replace
+        TypedAdapter adapter = new TypedAdapter(mContext, 100, 5);
+        new ScrollSimulation(12, 3, Long.MAX_VALUE).run(adapter, mParent);
+
+        assertEquals(0, adapter.mMismatches);
+        assertTrue("Created " + adapter.mCreated + " views", adapter.mCreated < 100);
+    }
+
+    @Test
+    public void stopsAtTheBottom() {
+        TypedAdapter adapter = new TypedAdapter(mContext, 100, 1);
+        ScrollSimulation.Report report = new ScrollSimulation(12, 3, Long.MAX_VALUE)
+                .run(adapter, mParent);
+
+        // Tops 0, 3, ..., 90, the last row becomes visible at 90
+        assertEquals(31, report.getFrameCount());
+        assertEquals(100, report.getRowCount());
+    }
+
+    @Test
+    public void shortList() {
+        TypedAdapter adapter = new TypedAdapter(mContext, 5, 1);
+        ScrollSimulation.Report report = new ScrollSimulation(12, 3, Long.MAX_VALUE)
+                .run(adapter, mParent);
+
+        assertEquals(1, report.getFrameCount());
+        assertEquals(5, report.getRowCount());
+    }
+
+    @Test
+    public void percentiles() {
+        ArrayList<Long> times = new ArrayList<Long>();
+        for (long time = 1; time <= 100; time++) {
+            times.add(time);
+        }
+        Collections.shuffle(times);
+
+        ScrollSimulation.Report report = new ScrollSimulation.Report(100, Long.MAX_VALUE);
+        for (long time : times) {
+            report.addRow(time, 0);
+        }
+
+        assertEquals(1, report.getPercentile(0));
+        assertEquals(1, report.getPercentile(1));
+        assertEquals(50, report.getPercentile(50));
+        assertEquals(90, report.getPercentile(90));
+        assertEquals(99, report.getPercentile(99));
+        assertEquals(100, report.getPercentile(100));
+    }
+
+    @Test
+    public void percentilesRoundUp() {
+        ScrollSimulation.Report report = new ScrollSimulation.Report(3, Long.MAX_VALUE);
+        report.addRow(30, 0);
+        report.addRow(10, 0);
+        report.addRow(20, 0);
+
+        assertEquals(20, report.getPercentile(50));
+        assertEquals(30, report.getPercentile(90));
+        assertEquals(0, new ScrollSimulation.Report(3, Long.MAX_VALUE).getPercentile(50));
+    }
+
+    @Test
+    public void countsBudget() {
+        ScrollSimulation.Report report = new ScrollSimulation.Report(3, 100);
+        report.addRow(100, 8);
+        report.addRow(101, 16);
+        report.addRow(40, 0);
+        report.addFrame(100);
+        report.addFrame(141);
+
+        assertEquals(1, report.getRowsOverBudget());
+        assertEquals(1, report.getFramesOverBudget());
+        assertEquals(2, report.getFrameCount());
+        assertEquals(8, report.getAllocatedBytesPerRow());
+    }
+
+    /**
+     * Adapter whose row type is 1 every <code>period</code> rows and 0 otherwise.
+     * Counts the views it creates and the convert views of the wrong type.
+     */
+    private static class TypedAdapter extends BaseAdapter {
+        private final Context mContext;
+        private final int mCount;
+        private final int mPeriod;
+        int mCreated;
+        int mMismatches;
+
+        TypedAdapter(Context context, int count, int period) {
+            mContext = context;
+            mCount = count;
+            mPeriod = period;
+        }
+
+        @Override
+        public int getCount() {
+            return mCount;
+        }
+
+        @Override
+        public Object getItem(int position) {
+            return position;
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public int getViewTypeCount() {
+            return 2;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return position % mPeriod == 0 ? 1 : 0;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            final Integer type = getItemViewType(position);
+            if (convertView == null) {
+                convertView = new View(mContext);
+                convertView.setTag(type);
+                mCreated++;
+            } else if (!type.equals(convertView.getTag())) {
+                mMismatches++;
+            }
+            return convertView;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.xmladapters;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import java.util.LinkedHashMap;
+
+/**
+ * A content provider generating a configurable number of rows. Text columns
+ * contain text of a fixed width. Flag columns, and columns that are queried but
+ * not declared, alternate between 0 and 1. The column named "_id" always contains
+ * the row number.
+ */
+public class SyntheticProvider extends ContentProvider {
+    public static final String AUTHORITY = "com.example.xmladapters.synthetic";
+    public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/rows");
+
+    private final int mRows;
+    // A width of 0 declares a flag column
+    private final LinkedHashMap<String, Integer> mWidths;
+
+    public SyntheticProvider(int rows) {
+        mRows = rows;
+        mWidths = new LinkedHashMap<String, Integer>();
+    }
+
+    /**
+     * Declares a text column containing <code>width</code> characters per row.
+     */
+    public SyntheticProvider column(String name, int width) {
+        mWidths.put(name, width);
+        return this;
+    }
+
+    /**
+     * Declares a column alternating between 0 and 1.
+     */
+    public SyntheticProvider flag(String name) {
+        mWidths.put(name, 0);
+        return this;
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+
+        if (projection == null) {
+            projection = new String[mWidths.size() + 1];
+            projection[0] = "_id";
+            int i = 1;
+            for (String name : mWidths.keySet()) {
+                projection[i++] = name;
+            }
+        }
+
+        final MatrixCursor cursor = new MatrixCursor(projection, mRows);
+        final int count = projection.length;
+
+        for (int row = 0; row < mRows; row++) {
+            final Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = value(projection[i], row);
+            }
+            cursor.addRow(values);
+        }
+
+        return cursor;
+    }
+
+    private Object value(String column, int row) {
+        if ("_id".equals(column)) {
+            return row;
+        }
+
+        final Integer width = mWidths.get(column);
+        if (width == null || width == 0) {
+            return row % 2;
+        }
+
+        final StringBuilder builder = new StringBuilder(width);
+        final String prefix = column + row;
+        while (builder.length() < width) {
+            builder.append(prefix);
+        }
+        builder.setLength(width);
+        return builder.toString();
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        return null;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException();
+    }
+}